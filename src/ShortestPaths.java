@@ -1,6 +1,18 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class ShortestPaths
 {
@@ -12,15 +24,47 @@ public class ShortestPaths
     private final long INF = Long.MAX_VALUE / 4;
     private final String NL = System.lineSeparator();
 
+    private final String filePath;
+    private boolean exitOnError = true; // otherwise input errors are thrown
+    private final long DEBOUNCE_MS = 100; // quiet period before re-reading
+    private final long MAX_DELAY_MS = 1000; // reload by now even if writes go on
+
 
     public ShortestPaths(String filePath)
     {
+        this.filePath = filePath;
+
         readFileContents(filePath);
         buildDistanceMatrix();
+        solve();
+        printResults();
+    }
+
+    /**
+     * Parses a graph without solving or printing it, for callers that decide
+     * for themselves when to solve(). Input errors are thrown as
+     * IllegalArgumentException carrying the usual message.
+     */
+    ShortestPaths(BufferedReader input) throws IOException
+    {
+        this.filePath = null;
+        this.exitOnError = false;
+
+        readContents(input);
+        if (dist == null) error("Error: Invalid number of vertices '' on line 1.");
+        buildDistanceMatrix();
+    }
+
+    void solve()
+    {
         buildPathLengthMatrix();
         buildInterVertMatrix();
 
         floydSolve();
+    }
+
+    void printResults()
+    {
         printDistMatrix();
         printPathLenMatrix();
         printInterVertMatrix();
@@ -28,23 +72,35 @@ public class ShortestPaths
         backtrackSolution();
     }
 
-    private void readFileContents(String filePath)
+    private void error(String message)
     {
-        String line;
-        int lineNum = 1;
+        if (!exitOnError) throw new IllegalArgumentException(message);
 
+        System.err.println(message);
+        System.exit(1);
+    }
+
+    private void readFileContents(String filePath)
+    {
         try (BufferedReader br = new BufferedReader(new FileReader(filePath)))
         {
-            while((line = br.readLine()) != null)
-            {
-                if (lineNum == 1) vertNum = checkVertInput(line);
-                else checkInput(line, lineNum, vertNum);
-                lineNum++;
-            }
+            readContents(br);
         } catch (IOException ioe)
         {
-            System.err.println("Error: Cannot open file '" + filePath + "'.");
-            System.exit(1);
+            error("Error: Cannot open file '" + filePath + "'.");
+        }
+    }
+
+    private void readContents(BufferedReader br) throws IOException
+    {
+        String line;
+        int lineNum = 1;
+
+        while((line = br.readLine()) != null)
+        {
+            if (lineNum == 1) vertNum = checkVertInput(line);
+            else checkInput(line, lineNum, vertNum);
+            lineNum++;
         }
     }
 
@@ -56,9 +112,8 @@ public class ShortestPaths
 
         if (args.length != 3)
         {
-            System.err.println("Error: Invalid edge data '" + line +
+            error("Error: Invalid edge data '" + line +
                     "' on line " + lineNum + ".");
-            System.exit(1);
         }
 
         long weight = 0;
@@ -67,34 +122,30 @@ public class ShortestPaths
             weight = Long.parseLong(args[2]);
         } catch (NumberFormatException e)
         {
-            System.err.println("Error: Invalid edge weight '" + args[2] +
+            error("Error: Invalid edge weight '" + args[2] +
                             "' on line " + lineNum + ".");
-            System.exit(1);
         }
 
         if (weight < 1 || weight > Integer.MAX_VALUE)
         {
-            System.err.println("Error: Invalid edge weight '" + weight +
+            error("Error: Invalid edge weight '" + weight +
                     "' on line " + lineNum + ".");
-            System.exit(1);
         }
 
         // Starting vertex (if longer than char)
         if (args[0].length() != 1)
         {
-            System.err.println("Error: Starting vertex '"+ args[0] +
+            error("Error: Starting vertex '"+ args[0] +
                     "' on line " + lineNum +  " is not among valid values " +
                     "A-"+ (char) delta + ".");
-            System.exit(1);
         }
 
         // Ending vertex (if longer than char)
         if (args[1].length() != 1)
         {
-            System.err.println("Error: Ending vertex '"+ args[1] +
+            error("Error: Ending vertex '"+ args[1] +
                     "' on line " + lineNum +  " is not among valid values " +
                     "A-"+ (char) delta + ".");
-            System.exit(1);
         }
 
         // Check that the vertices are in range (A is 65 in ASCII)
@@ -102,20 +153,18 @@ public class ShortestPaths
         char startVertex = args[0].charAt(0);
         if (startVertex > delta || startVertex < 'A')
         {
-            System.err.println("Error: Starting vertex '" + startVertex +
+            error("Error: Starting vertex '" + startVertex +
                     "' on line " + lineNum +  " is not among valid values " +
                     "A-"+ (char) delta + ".");
-            System.exit(1);
         }
 
         // Ending vertex
         char endVertex = args[1].charAt(0);
         if (endVertex > delta || endVertex < 'A')
         {
-            System.err.println("Error: Ending vertex '" + endVertex +
+            error("Error: Ending vertex '" + endVertex +
                     "' on line " + lineNum +  " is not among valid values " +
                     "A-"+ (char) delta + ".");
-            System.exit(1);
         }
 
         int fromInx = startVertex - 'A';
@@ -133,16 +182,14 @@ public class ShortestPaths
         } catch (NumberFormatException e)
         {
             // TODO: verify this is the correct error message
-            System.err.println("Error: Invalid number of vertices '"
+            error("Error: Invalid number of vertices '"
                     + firstLine + "' on line 1.");
-            System.exit(1);
         }
 
         if (vertNum < 1 || vertNum > 26)
         {
-            System.err.println("Error: Invalid number of vertices '"
+            error("Error: Invalid number of vertices '"
                     + firstLine + "' on line 1.");
-            System.exit(1);
         }
 
         dist = new long[vertNum][vertNum];
@@ -219,6 +266,163 @@ public class ShortestPaths
         }
     }
 
+    /**
+     * Brings pathLength and interVert up to date after the weight of edge
+     * u -> v has dropped (or the edge was added), without re-running Floyd.
+     * Any path that gets shorter must now use u -> v exactly once, so each
+     * pair only needs to be compared against i ~> u -> v ~> j.
+     */
+    private void relaxEdge(int u, int v)
+    {
+        int n = vertNum;
+        long w = dist[u][v];
+
+        for (int i = 0; i < n; i++)
+        {
+            // The diagonal may hold a self-loop weight, but reaching u from u costs nothing
+            long head = (i == u) ? 0 : pathLength[i][u];
+            if (head == INF) continue;
+
+            for (int j = 0; j < n; j++)
+            {
+                long tail = (j == v) ? 0 : pathLength[v][j];
+                if (tail == INF) continue;
+
+                long candidate = head + w + tail;
+                if (candidate < pathLength[i][j])
+                {
+                    pathLength[i][j] = candidate;
+                    if (i != u) interVert[i][j] = inxToChar(u);
+                    else if (j != v) interVert[i][j] = inxToChar(v);
+                    else interVert[i][j] = '-';
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-reads the input file and applies only the edges that changed since
+     * the last read. Shorter or new edges are relaxed in place; a longer or
+     * removed edge can invalidate any path through it, so that falls back to
+     * a full solve. Returns false if nothing changed or the file is invalid.
+     */
+    boolean reload()
+    {
+        long[][] oldDist = dist;
+        int oldVertNum = vertNum;
+
+        try
+        {
+            readFileContents(filePath);
+            buildDistanceMatrix();
+        } catch (IllegalArgumentException e)
+        {
+            // Keep the last good graph until the file is fixed
+            System.err.println(e.getMessage());
+            dist = oldDist;
+            vertNum = oldVertNum;
+            return false;
+        }
+
+        if (vertNum != oldVertNum)
+        {
+            solve();
+            return true;
+        }
+
+        boolean fullSolve = false;
+        List<int[]> shortened = new ArrayList<>();
+        for (int i = 0; i < vertNum; i++)
+        {
+            for (int j = 0; j < vertNum; j++)
+            {
+                // Self-loops only ever touch the diagonal, which Floyd seeds
+                // from dist directly, so treat any change there as a re-solve
+                if (dist[i][j] > oldDist[i][j] || (i == j && dist[i][j] != oldDist[i][j]))
+                    fullSolve = true;
+                else if (dist[i][j] < oldDist[i][j])
+                    shortened.add(new int[] {i, j});
+            }
+        }
+
+        if (fullSolve)
+        {
+            solve();
+            return true;
+        }
+
+        for (int[] edge : shortened)
+            relaxEdge(edge[0], edge[1]);
+        return !shortened.isEmpty();
+    }
+
+    /**
+     * Watches the input file and prints refreshed results each time it is
+     * rewritten. Bursts of writes are collapsed into one reload by waiting
+     * until the file has been quiet for DEBOUNCE_MS, but never for longer than
+     * MAX_DELAY_MS. Only events for the watched file restart the quiet period,
+     * so busy neighbours in the same directory cannot hold a reload back.
+     */
+    private void watch()
+    {
+        Path file = Paths.get(filePath).toAbsolutePath();
+        Path name = file.getFileName();
+        exitOnError = false;
+        System.out.println(NL);
+
+        try (WatchService ws = FileSystems.getDefault().newWatchService())
+        {
+            file.getParent().register(ws, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+
+            while (true)
+            {
+                if (!isTouched(ws.take(), name)) continue;
+
+                long now = System.nanoTime();
+                long deadline = now + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MS);
+                long quietUntil = now + TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MS);
+                while (true)
+                {
+                    long wait = Math.min(quietUntil, deadline) - System.nanoTime();
+                    if (wait <= 0) break;
+
+                    WatchKey key = ws.poll(wait, TimeUnit.NANOSECONDS);
+                    if (key == null) break;
+                    if (isTouched(key, name))
+                        quietUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MS);
+                }
+
+                if (reload())
+                {
+                    printResults();
+                    System.out.println(NL);
+                }
+            }
+        } catch (IOException ioe)
+        {
+            System.err.println("Error: Cannot watch file '" + filePath + "'.");
+            System.exit(1);
+        } catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isTouched(WatchKey key, Path name)
+    {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            // An overflow means events were dropped, so assume the file changed
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || name.equals(event.context()))
+                touched = true;
+        }
+        key.reset();
+        return touched;
+    }
+
     private char inxToChar(int inx)
     {
         return (char) ('A' + inx);
@@ -229,6 +433,49 @@ public class ShortestPaths
         return (int) ch - 'A';
     }
 
+    int getVertNum()
+    {
+        return vertNum;
+    }
+
+    String getDistance(int i, int j)
+    {
+        return (pathLength[i][j] == INF) ? "infinity" : String.valueOf(pathLength[i][j]);
+    }
+
+    String getPath(int i, int j)
+    {
+        // Only build a path if one exists
+        return (pathLength[i][j] == INF) ? "none" : getRecursivePath(i, j);
+    }
+
+    /**
+     * SHA-256 of the parsed distance matrix, so two inputs that describe the
+     * same edges (in any order, spacing, or with overridden duplicates) hash
+     * the same.
+     */
+    String contentHash()
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update((byte) vertNum);
+            for (long[] row : dist)
+                for (long v : row)
+                    for (int shift = 56; shift >= 0; shift -= 8)
+                        md.update((byte) (v >>> shift));
+
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest())
+                sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
     private void backtrackSolution()
     {
         StringBuilder sb = new StringBuilder();
@@ -236,21 +483,9 @@ public class ShortestPaths
         {
             for (int j = 0; j < vertNum; j++)
             {
-                long currentPathLength = pathLength[i][j];
-                String distanceString = (currentPathLength == INF) ? "infinity" : String.valueOf(currentPathLength);
-
                 sb.append(inxToChar(i)).append(" -> ").append(inxToChar(j))
-                        .append(", distance: ").append(distanceString)
-                        .append(", path: ");
-
-                // Only print a path if one exists
-                if (currentPathLength != INF)
-                {
-                    sb.append(getRecursivePath(i, j));
-                } else
-                {
-                    sb.append("none");
-                }
+                        .append(", distance: ").append(getDistance(i, j))
+                        .append(", path: ").append(getPath(i, j));
 
                 // Append new line unless it's the very last line of output
                 if (i < vertNum - 1 || j < vertNum - 1)
@@ -388,6 +623,12 @@ public class ShortestPaths
 
     public static void main(String[] args)
     {
+        if (args.length == 2 && args[0].equals("--watch"))
+        {
+            new ShortestPaths(args[1]).watch();
+            return;
+        }
+
         if (args.length != 1)
         {
             System.out.println("Usage: java ShortestPaths <filename>");
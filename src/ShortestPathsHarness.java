@@ -0,0 +1,613 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Seeded scale and regression harness for ShortestPaths.
+ *
+ * For every graph size it generates random graphs, solves each one with the
+ * full Floyd solve and with the incremental engine behind --watch, and checks
+ * both against an independent Dijkstra reference: every distance must match
+ * and every printed path must be made of real edges that add up to it.
+ * It then times parsing, solve() and printing separately, and records per
+ * size the bytes allocated by parse and solve and the heap a solved instance
+ * retains. The budgets apply to solve time, allocation and retained size.
+ *
+ * Solve time is stored relative to a fixed calibration kernel timed in the
+ * same JVM, so a baseline roughly carries over to other machines. It is
+ * still only trustworthy on hardware and a JDK close to the one that
+ * recorded it; re-record with --record when those change.
+ *
+ * Usage: java ShortestPathsHarness [--record] [baseline file]
+ */
+public class ShortestPathsHarness
+{
+    // The input format names vertices A-Z, so 26 is as large as a graph gets
+    private final int[] SIZES = {1, 2, 4, 8, 12, 16, 20, 26};
+    private final long SEED = 20251019L;
+    private final int GRAPHS_PER_SIZE = 20;
+    private final int EDITS_PER_GRAPH = 10;
+    private final int WARMUP_ROUNDS = 100;
+    private final int TIMED_ROUNDS = 50;
+    // Enough live copies that heap accounting granularity washes out
+    private final long RETAINED_TARGET_BYTES = 16L * 1024 * 1024;
+    private final int MAX_RETAINED_COPIES = 100_000;
+    private final int CALIBRATION_SIZE = 26;
+
+    // A size fails when it exceeds the baseline by both the ratio and the slack
+    private final double TIME_TOLERANCE = 2.0;
+    private final long TIME_SLACK_NS = 5_000;
+    private final double ALLOC_TOLERANCE = 1.25;
+    private final double RETAINED_TOLERANCE = 1.25;
+    private final long RETAINED_SLACK_BYTES = 256;
+
+    private final long INF = Long.MAX_VALUE / 4;
+    private final String DEFAULT_BASELINE = "harness_baseline.properties";
+    private final Pattern RESULT_LINE =
+            Pattern.compile("^([A-Z]) -> ([A-Z]), distance: (\\S+), path: (.*)$");
+
+    private final PrintStream out = System.out;
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+    private final Path workDir;
+
+    private int numRight = 0;
+    private int total = 0;
+    private final long[][] calibrationSeed = new long[CALIBRATION_SIZE][CALIBRATION_SIZE];
+    private final long[][] calibrationScratch = new long[CALIBRATION_SIZE][CALIBRATION_SIZE];
+    private long sink; // keeps the calibration kernel from being optimized away
+
+    private ShortestPathsHarness() throws IOException
+    {
+        workDir = Files.createTempDirectory("shortestpaths-harness");
+
+        Random rnd = new Random(SEED);
+        for (long[] row : calibrationSeed)
+            for (int j = 0; j < row.length; j++)
+                row[j] = 1 + rnd.nextInt(100);
+    }
+
+    /** A generated graph: weights[i][j] is 0 where there is no edge. */
+    private static class Graph
+    {
+        final int n;
+        final long[][] weights;
+
+        Graph(int n)
+        {
+            this.n = n;
+            this.weights = new long[n][n];
+        }
+
+        Graph copy()
+        {
+            Graph g = new Graph(n);
+            for (int i = 0; i < n; i++)
+                System.arraycopy(weights[i], 0, g.weights[i], 0, n);
+            return g;
+        }
+    }
+
+    /** Measurements for one graph size, all per graph. */
+    private static class Stats
+    {
+        long parseNs; // median wall time to parse
+        long solveNs; // median wall time of solve()
+        long printNs; // median wall time to print every table
+        long allocBytes; // bytes allocated by parse and solve
+        long retainedBytes; // heap held by a solved instance
+        long calibrationNs; // median calibration kernel time in the same rounds
+
+        double allocRateMBs()
+        {
+            long ns = parseNs + solveNs;
+            return ns == 0 ? 0 : allocBytes / (ns / 1e9) / (1024 * 1024);
+        }
+    }
+
+    private Graph randomGraph(Random rnd, int n)
+    {
+        Graph g = new Graph(n);
+        // Mix sparse and dense graphs, and now and then use weights near the
+        // input limit so long path sums get exercised too
+        double density = rnd.nextDouble();
+        boolean huge = rnd.nextInt(4) == 0;
+
+        for (int i = 0; i < n; i++)
+        {
+            for (int j = 0; j < n; j++)
+            {
+                // Self-loops are rarer, but they take their own solver paths
+                double p = (i == j) ? density / 4 : density;
+                if (rnd.nextDouble() < p)
+                    g.weights[i][j] = randomWeight(rnd, huge);
+            }
+        }
+        return g;
+    }
+
+    private long randomWeight(Random rnd, boolean huge)
+    {
+        if (huge) return Integer.MAX_VALUE - rnd.nextInt(1000);
+        return 1 + rnd.nextInt(100);
+    }
+
+    private void writeGraph(Graph g, Path file) throws IOException
+    {
+        Files.write(file, graphText(g).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String graphText(Graph g)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(g.n).append('\n');
+        for (int i = 0; i < g.n; i++)
+        {
+            for (int j = 0; j < g.n; j++)
+            {
+                if (g.weights[i][j] != 0)
+                    sb.append((char) ('A' + i)).append(' ').append((char) ('A' + j))
+                            .append(' ').append(g.weights[i][j]).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Independent reference: Dijkstra from every vertex. ShortestPaths seeds
+     * the diagonal from dist, so a vertex with a self-loop reports the
+     * cheaper of that loop and its shortest cycle through another vertex.
+     */
+    private long[][] referenceDistances(Graph g)
+    {
+        long[][] d = new long[g.n][g.n];
+        for (int s = 0; s < g.n; s++)
+        {
+            Arrays.fill(d[s], INF);
+            d[s][s] = 0;
+            PriorityQueue<long[]> pq = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+            pq.add(new long[] {0, s});
+            while (!pq.isEmpty())
+            {
+                long[] top = pq.poll();
+                int u = (int) top[1];
+                if (top[0] > d[s][u]) continue;
+                for (int v = 0; v < g.n; v++)
+                {
+                    long w = g.weights[u][v];
+                    if (w != 0 && d[s][u] + w < d[s][v])
+                    {
+                        d[s][v] = d[s][u] + w;
+                        pq.add(new long[] {d[s][v], v});
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < g.n; i++)
+        {
+            if (g.weights[i][i] == 0) continue;
+            d[i][i] = g.weights[i][i];
+            for (int k = 0; k < g.n; k++)
+                if (k != i && d[i][k] != INF && d[k][i] != INF)
+                    d[i][i] = Math.min(d[i][i], d[i][k] + d[k][i]);
+        }
+        return d;
+    }
+
+    /**
+     * Checks the "X -> Y, distance: d, path: ..." lines of a run against the
+     * reference. Returns null when they agree, otherwise what went wrong.
+     */
+    private String verify(String output, Graph g, long[][] expected)
+    {
+        int lines = 0;
+        for (String line : output.split("\\R"))
+        {
+            Matcher m = RESULT_LINE.matcher(line);
+            if (!m.matches()) continue;
+            lines++;
+
+            int i = m.group(1).charAt(0) - 'A';
+            int j = m.group(2).charAt(0) - 'A';
+            String distance = m.group(3);
+            String path = m.group(4);
+
+            String want = expected[i][j] == INF ? "infinity" : String.valueOf(expected[i][j]);
+            if (!want.equals(distance))
+                return "expected distance " + want + " in '" + line + "'";
+
+            if (expected[i][j] == INF)
+            {
+                if (!path.equals("none")) return "expected no path in '" + line + "'";
+                continue;
+            }
+
+            // A vertex's path to itself is always printed as just the vertex
+            if (i == j)
+            {
+                if (!path.equals(m.group(1))) return "expected a one-vertex path in '" + line + "'";
+                continue;
+            }
+
+            String[] verts = path.split(" -> ");
+            if (verts[0].charAt(0) - 'A' != i || verts[verts.length - 1].charAt(0) - 'A' != j)
+                return "path has wrong endpoints in '" + line + "'";
+
+            long sum = 0;
+            for (int k = 0; k + 1 < verts.length; k++)
+            {
+                long w = g.weights[verts[k].charAt(0) - 'A'][verts[k + 1].charAt(0) - 'A'];
+                if (w == 0) return "path uses a missing edge in '" + line + "'";
+                sum += w;
+            }
+            if (sum != expected[i][j])
+                return "path adds up to " + sum + " in '" + line + "'";
+        }
+
+        if (lines != g.n * g.n)
+            return "expected " + (g.n * g.n) + " result lines, got " + lines;
+        return null;
+    }
+
+    private String capture(Runnable run)
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buf, true, StandardCharsets.UTF_8));
+        try
+        {
+            run.run();
+        } finally
+        {
+            System.setOut(out);
+        }
+        return buf.toString(StandardCharsets.UTF_8);
+    }
+
+    /** The printed matrices up to the intermediate vertices, which may differ on ties. */
+    private String lengthMatrices(String output)
+    {
+        int end = output.indexOf("Intermediate vertices:");
+        return end < 0 ? output : output.substring(0, end);
+    }
+
+    /**
+     * Solves every graph of one size with both engines and checks the results.
+     * The incremental engine starts from the edgeless graph, so its first
+     * reload relaxes every edge, and then follows a run of random edits. After
+     * each edit its distance and path length matrices must also match a fresh
+     * solve of the same file exactly.
+     */
+    private String crossCheck(int n, List<Graph> graphs, Random rnd) throws IOException
+    {
+        Path file = workDir.resolve("check_" + n + ".txt");
+
+        for (Graph g : graphs)
+        {
+            writeGraph(g, file);
+            String floyd = capture(() -> new ShortestPaths(file.toString()));
+            String problem = verify(floyd, g, referenceDistances(g));
+            if (problem != null) return "floydSolve: " + problem;
+
+            writeGraph(new Graph(n), file);
+            System.setOut(discard);
+            ShortestPaths watched;
+            try
+            {
+                watched = new ShortestPaths(file.toString());
+            } finally
+            {
+                System.setOut(out);
+            }
+
+            Graph current = g.copy();
+            for (int edit = 0; edit <= EDITS_PER_GRAPH; edit++)
+            {
+                if (edit > 0) current = editGraph(current, rnd);
+                writeGraph(current, file);
+                watched.reload();
+
+                String incremental = capture(watched::printResults);
+                problem = verify(incremental, current, referenceDistances(current));
+                if (problem != null) return "incremental (edit " + edit + "): " + problem;
+
+                String fresh = capture(() -> new ShortestPaths(file.toString()));
+                if (!lengthMatrices(incremental).equals(lengthMatrices(fresh)))
+                    return "incremental (edit " + edit + "): matrices differ from a fresh solve";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Mostly shortens or adds edges, but sometimes lengthens or removes one,
+     * touches a self-loop, or changes the vertex count.
+     */
+    private Graph editGraph(Graph g, Random rnd)
+    {
+        int target = rnd.nextInt(12);
+        if (target == 11) return resize(g, rnd);
+
+        int i = rnd.nextInt(g.n);
+        int j = (target == 10 || g.n == 1) ? i : (i + 1 + rnd.nextInt(g.n - 1)) % g.n;
+        long w = g.weights[i][j];
+
+        int kind = rnd.nextInt(10);
+        if (kind < 7) g.weights[i][j] = (w == 0) ? randomWeight(rnd, false) : 1 + rnd.nextInt((int) Math.min(w, 100));
+        else if (kind < 9) g.weights[i][j] = 0;
+        else g.weights[i][j] = randomWeight(rnd, false) + 100;
+        return g;
+    }
+
+    /** Grows or shrinks the graph by up to three vertices, keeping the edges that still fit. */
+    private Graph resize(Graph g, Random rnd)
+    {
+        int n = Math.max(1, Math.min(26, g.n + rnd.nextInt(7) - 3));
+        if (n == g.n) n = (n == 26) ? 25 : n + 1;
+
+        Graph resized = new Graph(n);
+        int keep = Math.min(n, g.n);
+        for (int i = 0; i < keep; i++)
+            System.arraycopy(g.weights[i], 0, resized.weights[i], 0, keep);
+        return resized;
+    }
+
+    private ShortestPaths parse(String text)
+    {
+        try
+        {
+            return new ShortestPaths(new BufferedReader(new StringReader(text)));
+        } catch (IOException e)
+        {
+            // Reading from a string cannot fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * One run of a plain Floyd triple loop on a fixed graph. It is timed in
+     * the same rounds as solve(), and solve times are stored as multiples of
+     * it, so machine speed and clock drift shift both alike.
+     */
+    private long calibrationKernel()
+    {
+        int n = calibrationSeed.length;
+        for (int i = 0; i < n; i++)
+            System.arraycopy(calibrationSeed[i], 0, calibrationScratch[i], 0, n);
+
+        long[][] m = calibrationScratch;
+        for (int k = 0; k < n; k++)
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    if (m[i][k] + m[k][j] < m[i][j]) m[i][j] = m[i][k] + m[k][j];
+        return m[n - 1][0];
+    }
+
+    private long usedHeapAfterGc()
+    {
+        for (int k = 0; k < 3; k++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /** Heap held by one solved instance: used heap with copies live, minus without. */
+    private long retainedBytes(int n, String text)
+    {
+        // Three n x n matrices of long, long and char, plus object overhead
+        long estimate = (long) n * n * (8 + 8 + 2) + 256;
+        int copies = (int) Math.min(MAX_RETAINED_COPIES, RETAINED_TARGET_BYTES / estimate);
+        ShortestPaths[] kept = new ShortestPaths[copies];
+        long before = usedHeapAfterGc();
+        for (int k = 0; k < kept.length; k++)
+        {
+            kept[k] = parse(text);
+            kept[k].solve();
+        }
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(kept);
+        return Math.max(0, after - before) / kept.length;
+    }
+
+    private Stats measure(List<Graph> graphs)
+    {
+        List<String> texts = new ArrayList<>();
+        for (Graph g : graphs) texts.add(graphText(g));
+        ShortestPaths[] solved = new ShortestPaths[texts.size()];
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        System.setOut(discard);
+        try
+        {
+            long[] parseNs = new long[TIMED_ROUNDS];
+            long[] solveNs = new long[TIMED_ROUNDS];
+            long[] printNs = new long[TIMED_ROUNDS];
+            long[] calibrationNs = new long[TIMED_ROUNDS];
+            long allocated = 0;
+
+            for (int r = -WARMUP_ROUNDS; r < TIMED_ROUNDS; r++)
+            {
+                long allocStart = threads.getCurrentThreadAllocatedBytes();
+                long t0 = System.nanoTime();
+                for (int k = 0; k < solved.length; k++) solved[k] = parse(texts.get(k));
+                long t1 = System.nanoTime();
+                for (ShortestPaths sp : solved) sp.solve();
+                long t2 = System.nanoTime();
+                long allocEnd = threads.getCurrentThreadAllocatedBytes();
+                for (ShortestPaths sp : solved) sp.printResults();
+                long t3 = System.nanoTime();
+                sink += calibrationKernel();
+                long t4 = System.nanoTime();
+
+                if (r < 0) continue;
+                parseNs[r] = t1 - t0;
+                solveNs[r] = t2 - t1;
+                printNs[r] = t3 - t2;
+                calibrationNs[r] = t4 - t3;
+                allocated += allocEnd - allocStart;
+            }
+
+            Stats stats = new Stats();
+            stats.parseNs = median(parseNs) / solved.length;
+            stats.solveNs = median(solveNs) / solved.length;
+            stats.printNs = median(printNs) / solved.length;
+            stats.calibrationNs = median(calibrationNs);
+            stats.allocBytes = allocated / ((long) TIMED_ROUNDS * solved.length);
+            stats.retainedBytes = retainedBytes(graphs.get(0).n, texts.get(0));
+            return stats;
+        } finally
+        {
+            System.setOut(out);
+        }
+    }
+
+    private long median(long[] values)
+    {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    private String checkBaseline(int n, Stats s, Properties baseline)
+    {
+        String ratio = baseline.getProperty(n + ".solveRatio");
+        String alloc = baseline.getProperty(n + ".allocBytes");
+        String retained = baseline.getProperty(n + ".retainedBytes");
+        if (ratio == null || alloc == null || retained == null) return null;
+
+        long baseSolve = Math.round(Double.parseDouble(ratio) * s.calibrationNs);
+        if (s.solveNs > baseSolve * TIME_TOLERANCE && s.solveNs - baseSolve > TIME_SLACK_NS)
+            return "solve time regressed: " + s.solveNs + " ns vs baseline " + baseSolve + " ns";
+
+        long baseAlloc = Long.parseLong(alloc);
+        if (s.allocBytes > baseAlloc * ALLOC_TOLERANCE)
+            return "allocation regressed: " + s.allocBytes + " B vs baseline " + baseAlloc + " B";
+
+        long baseRetained = Long.parseLong(retained);
+        if (s.retainedBytes > baseRetained * RETAINED_TOLERANCE
+                && s.retainedBytes - baseRetained > RETAINED_SLACK_BYTES)
+            return "retained size regressed: " + s.retainedBytes + " B vs baseline " + baseRetained + " B";
+        return null;
+    }
+
+    private void run(boolean record, Path baselineFile) throws IOException
+    {
+        Properties baseline = new Properties();
+        if (!record)
+        {
+            if (Files.exists(baselineFile))
+                try (var in = Files.newInputStream(baselineFile)) { baseline.load(in); }
+            else
+                out.println("No baseline at '" + baselineFile + "', checking correctness only.");
+        }
+
+        // Written in size order without a timestamp, so re-recording diffs cleanly
+        StringBuilder recorded = new StringBuilder();
+        recorded.append("# ShortestPathsHarness baseline, per size and per graph.").append('\n');
+        recorded.append("# solveRatio is solve() time over the calibration kernel in the same JVM;").append('\n');
+        recorded.append("# it only holds on hardware and a JDK close to the recording one.").append('\n');
+        for (int n : SIZES)
+        {
+            total++;
+            out.print("Running size " + n + "...");
+
+            Random rnd = new Random(SEED + n);
+            List<Graph> graphs = new ArrayList<>();
+            for (int k = 0; k < GRAPHS_PER_SIZE; k++)
+                graphs.add(randomGraph(rnd, n));
+
+            String problem;
+            try
+            {
+                problem = crossCheck(n, graphs, rnd);
+            } catch (RuntimeException | StackOverflowError e)
+            {
+                // e.g. a cycle in interVert sends getRecursivePath round forever
+                problem = "solver crashed: " + e;
+            }
+            if (problem != null)
+            {
+                out.println("failure" + System.lineSeparator() + "  " + problem);
+                continue;
+            }
+
+            Stats s = measure(graphs);
+            String stats = String.format(Locale.ROOT,
+                    "[solve %.2f us, parse %.2f us, print %.1f us, %d B/solve, %.0f MB/s, retained %d B, kernel %.1f us]",
+                    s.solveNs / 1e3, s.parseNs / 1e3, s.printNs / 1e3, s.allocBytes,
+                    s.allocRateMBs(), s.retainedBytes, s.calibrationNs / 1e3);
+
+            recorded.append(n).append(".solveRatio=")
+                    .append(String.format(Locale.ROOT, "%.4f", (double) s.solveNs / s.calibrationNs)).append('\n');
+            recorded.append(n).append(".allocBytes=").append(s.allocBytes).append('\n');
+            recorded.append(n).append(".retainedBytes=").append(s.retainedBytes).append('\n');
+
+            problem = checkBaseline(n, s, baseline);
+            if (problem != null)
+            {
+                out.println("failure " + stats + System.lineSeparator() + "  " + problem);
+                continue;
+            }
+            out.println("success " + stats);
+            numRight++;
+        }
+
+        if (record)
+        {
+            Files.write(baselineFile, recorded.toString().getBytes(StandardCharsets.ISO_8859_1));
+            out.println("Baseline written to '" + baselineFile + "'.");
+        }
+
+        out.println();
+        out.println("Total sizes run: " + total);
+        out.println("Number correct : " + numRight);
+    }
+
+    private void deleteWorkDir() throws IOException
+    {
+        try (var files = Files.list(workDir))
+        {
+            for (Path f : (Iterable<Path>) files::iterator) Files.delete(f);
+        }
+        Files.delete(workDir);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        boolean record = args.length > 0 && args[0].equals("--record");
+        int rest = record ? 1 : 0;
+        if (args.length - rest > 1)
+        {
+            System.out.println("Usage: java ShortestPathsHarness [--record] [baseline file]");
+            System.exit(1);
+        }
+
+        ShortestPathsHarness harness = new ShortestPathsHarness();
+        Path baselineFile = Paths.get(args.length > rest ? args[rest] : harness.DEFAULT_BASELINE);
+        try
+        {
+            harness.run(record, baselineFile);
+        } finally
+        {
+            harness.deleteWorkDir();
+        }
+
+        System.exit(harness.numRight == harness.total ? 0 : 1);
+    }
+}
@@ -0,0 +1,289 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-running shortest-path query server on a local socket.
+ *
+ * Each connection is served on its own virtual thread (platform threads on
+ * Java versions without them) and speaks a line protocol:
+ *
+ *   GRAPH                  followed by the usual input file lines, then END.
+ *                          Replies "OK <id>", where id hashes the edge list.
+ *   DIST <id> <from> <to>  Replies "OK <distance>" or "OK infinity".
+ *   PATH <id> <from> <to>  Replies "OK A -> B -> C" or "OK none".
+ *   QUIT                   Closes the connection.
+ *
+ * Failures reply with the same "Error: ..." messages ShortestPaths prints.
+ * Solved graphs are kept in an LRU cache capped by estimated memory, and
+ * concurrent submissions of the same graph share one solve.
+ *
+ * Usage: java ShortestPathsServer [port] [cache MB]
+ */
+public class ShortestPathsServer
+{
+    private static final int DEFAULT_PORT = 7070;
+    private static final long DEFAULT_CACHE_MB = 64;
+    private static final int MAX_PORT = 65535;
+
+    private final long cacheCapBytes;
+    private long cachedBytes = 0; // guarded by cache
+
+    // Access-ordered, so iteration starts at the least recently used graph
+    private final LinkedHashMap<String, ShortestPaths> cache =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<ShortestPaths>> inFlight =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger solves = new AtomicInteger();
+
+    ShortestPathsServer(long cacheCapBytes)
+    {
+        this.cacheCapBytes = cacheCapBytes;
+    }
+
+    /** Number of graphs actually solved, as opposed to served from the cache. */
+    int solveCount()
+    {
+        return solves.get();
+    }
+
+    /** Rough footprint of a solved graph: dist, pathLength and interVert. */
+    private long estimateBytes(ShortestPaths sp)
+    {
+        long n = sp.getVertNum();
+        return n * n * (8 + 8 + 2) + 3 * n * 16 + 256;
+    }
+
+    private ShortestPaths lookup(String id)
+    {
+        synchronized (cache)
+        {
+            return cache.get(id);
+        }
+    }
+
+    private void store(String id, ShortestPaths sp)
+    {
+        long size = estimateBytes(sp);
+        synchronized (cache)
+        {
+            if (size > cacheCapBytes || cache.containsKey(id)) return;
+
+            cache.put(id, sp);
+            cachedBytes += size;
+
+            Iterator<ShortestPaths> eldest = cache.values().iterator();
+            while (cachedBytes > cacheCapBytes && eldest.hasNext())
+            {
+                cachedBytes -= estimateBytes(eldest.next());
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Solves a freshly parsed graph into the cache and returns its id, reusing
+     * a cached or in-flight solve of the same edges when there is one. Only
+     * ids that a following query can find are handed out.
+     */
+    private String submit(ShortestPaths parsed)
+    {
+        String id = parsed.contentHash();
+        if (lookup(id) != null) return id;
+
+        CompletableFuture<ShortestPaths> mine = new CompletableFuture<>();
+        CompletableFuture<ShortestPaths> existing = inFlight.putIfAbsent(id, mine);
+        if (existing != null)
+        {
+            try
+            {
+                existing.join();
+            } catch (CompletionException e)
+            {
+                throw new IllegalArgumentException("Error: Cannot solve graph '" + id + "'.", e);
+            }
+        } else
+        {
+            try
+            {
+                // Another thread may have finished this graph just before we registered
+                if (lookup(id) == null)
+                {
+                    parsed.solve();
+                    solves.incrementAndGet();
+                    store(id, parsed);
+                }
+                mine.complete(parsed);
+            } catch (RuntimeException e)
+            {
+                mine.completeExceptionally(e);
+                throw new IllegalArgumentException("Error: Cannot solve graph '" + id + "'.", e);
+            } finally
+            {
+                inFlight.remove(id);
+            }
+        }
+
+        if (lookup(id) == null)
+            throw new IllegalArgumentException("Error: Graph '" + id + "' does not fit in the cache.");
+        return id;
+    }
+
+    private String readGraph(BufferedReader in) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals("END"))
+            sb.append(line).append('\n');
+
+        ShortestPaths parsed = new ShortestPaths(new BufferedReader(new StringReader(sb.toString())));
+        return "OK " + submit(parsed);
+    }
+
+    private int vertex(String name, ShortestPaths sp)
+    {
+        char last = (char) ('A' + sp.getVertNum() - 1);
+        if (name.length() != 1 || name.charAt(0) < 'A' || name.charAt(0) > last)
+            throw new IllegalArgumentException("Error: Vertex '" + name +
+                    "' is not among valid values A-" + last + ".");
+        return name.charAt(0) - 'A';
+    }
+
+    private String query(String[] args)
+    {
+        if (args.length != 4)
+            throw new IllegalArgumentException("Error: Expected '" + args[0] + " <id> <from> <to>'.");
+
+        ShortestPaths sp = lookup(args[1]);
+        if (sp == null)
+            throw new IllegalArgumentException("Error: Unknown graph '" + args[1] + "'.");
+
+        int from = vertex(args[2], sp);
+        int to = vertex(args[3], sp);
+        return "OK " + (args[0].equals("DIST") ? sp.getDistance(from, to) : sp.getPath(from, to));
+    }
+
+    private void serve(Socket socket)
+    {
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8))
+        {
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                String[] args = line.trim().split("\\s+");
+                if (args[0].equals("QUIT")) break;
+
+                try
+                {
+                    switch (args[0])
+                    {
+                        case "GRAPH":
+                            out.println(readGraph(in));
+                            break;
+                        case "DIST":
+                        case "PATH":
+                            out.println(query(args));
+                            break;
+                        default:
+                            out.println("Error: Unknown command '" + args[0] + "'.");
+                    }
+                } catch (IllegalArgumentException e)
+                {
+                    out.println(e.getMessage());
+                }
+            }
+        } catch (IOException ioe)
+        {
+            // The client went away; nothing left to answer
+        }
+    }
+
+    private ExecutorService newExecutor()
+    {
+        try
+        {
+            // Virtual threads arrived in Java 21; look them up so older JDKs still run
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e)
+        {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    ServerSocket bind(int port) throws IOException
+    {
+        return new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /** Accepts connections until the socket is closed. */
+    void acceptLoop(ServerSocket server) throws IOException
+    {
+        ExecutorService executor = newExecutor();
+        try
+        {
+            while (true)
+            {
+                Socket socket = server.accept();
+                executor.execute(() -> serve(socket));
+            }
+        } finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void listen(int port)
+    {
+        try (ServerSocket server = bind(port))
+        {
+            System.out.println("Listening on " + server.getLocalSocketAddress() + ".");
+            acceptLoop(server);
+        } catch (IOException ioe)
+        {
+            System.err.println("Error: Cannot listen on port " + port + ".");
+            System.exit(1);
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        int port = DEFAULT_PORT;
+        long cacheMb = DEFAULT_CACHE_MB;
+
+        try
+        {
+            if (args.length > 2) throw new NumberFormatException();
+            if (args.length > 0) port = Integer.parseInt(args[0]);
+            if (args.length > 1) cacheMb = Long.parseLong(args[1]);
+
+            // A cache under 1 MB could not hold enough graphs to answer queries
+            if (port < 0 || port > MAX_PORT || cacheMb < 1 || cacheMb > Long.MAX_VALUE >> 20)
+                throw new NumberFormatException();
+        } catch (NumberFormatException e)
+        {
+            System.out.println("Usage: java ShortestPathsServer [port] [cache MB]");
+            System.exit(1);
+        }
+
+        new ShortestPathsServer(cacheMb * 1024 * 1024).listen(port);
+    }
+}
@@ -0,0 +1,338 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Protocol tests for ShortestPathsServer. Each test starts a server
+ * in-process on an ephemeral loopback port, talks to it over a socket and
+ * compares the replies with what ShortestPaths itself computes.
+ *
+ * Usage: java ShortestPathsServerTester
+ */
+public class ShortestPathsServerTester
+{
+    private final long MB = 1024 * 1024;
+    private final int CLIENTS = 50;
+
+    private final String NL = "\n";
+    private final String GRAPH = "4" + NL + "A C 2" + NL + "A D 10" + NL + "B A 7" + NL
+            + "B D 1" + NL + "C B 3" + NL;
+
+    private int numRight = 0;
+    private int total = 0;
+
+    /** A running server and the socket it accepts on. */
+    private static class Running implements AutoCloseable
+    {
+        final ShortestPathsServer server;
+        final ServerSocket socket;
+
+        Running(long cacheCapBytes) throws IOException
+        {
+            server = new ShortestPathsServer(cacheCapBytes);
+            socket = server.bind(0);
+            Thread accepter = new Thread(() ->
+            {
+                try
+                {
+                    server.acceptLoop(socket);
+                } catch (IOException e)
+                {
+                    // Closed at the end of the test
+                }
+            });
+            accepter.setDaemon(true);
+            accepter.start();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            socket.close();
+        }
+    }
+
+    /** One client connection. */
+    private static class Client implements AutoCloseable
+    {
+        final Socket socket;
+        final BufferedReader in;
+        final PrintWriter out;
+
+        Client(Running running) throws IOException
+        {
+            socket = new Socket(InetAddress.getLoopbackAddress(), running.socket.getLocalPort());
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        }
+
+        String ask(String request) throws IOException
+        {
+            out.print(request);
+            out.flush();
+            return in.readLine();
+        }
+
+        String submit(String graph) throws IOException
+        {
+            return ask("GRAPH\n" + graph + "END\n");
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            out.println("QUIT");
+            socket.close();
+        }
+    }
+
+    private interface Test
+    {
+        /** Returns null on success, otherwise what went wrong. */
+        String run() throws Exception;
+    }
+
+    private void runTest(String name, Test test)
+    {
+        total++;
+        System.out.print("Running test " + total + " (" + name + ")...");
+
+        String problem;
+        try
+        {
+            problem = test.run();
+        } catch (Exception e)
+        {
+            problem = "threw " + e;
+        }
+
+        if (problem == null)
+        {
+            System.out.println("success");
+            numRight++;
+        } else
+        {
+            System.out.println("failure" + System.lineSeparator() + "  " + problem);
+        }
+    }
+
+    private String id(String reply)
+    {
+        return (reply != null && reply.startsWith("OK ")) ? reply.substring(3) : null;
+    }
+
+    private String expect(String what, String expected, String received)
+    {
+        if (expected.equals(received)) return null;
+        return what + ": expected '" + expected + "', received '" + received + "'";
+    }
+
+    /** A graph on 26 vertices whose id depends on the weight. */
+    private String bigGraph(int weight)
+    {
+        return "26" + NL + "A Z " + weight + NL + "Z B 3" + NL;
+    }
+
+    private String testQueries() throws Exception
+    {
+        ShortestPaths local = new ShortestPaths(new BufferedReader(new StringReader(GRAPH)));
+        local.solve();
+
+        try (Running running = new Running(MB); Client client = new Client(running))
+        {
+            String id = id(client.submit(GRAPH));
+            if (id == null) return "GRAPH was not accepted";
+
+            for (int i = 0; i < 4; i++)
+            {
+                for (int j = 0; j < 4; j++)
+                {
+                    String from = String.valueOf((char) ('A' + i));
+                    String to = String.valueOf((char) ('A' + j));
+                    String problem = expect("DIST " + from + " " + to, "OK " + local.getDistance(i, j),
+                            client.ask("DIST " + id + " " + from + " " + to + NL));
+                    if (problem != null) return problem;
+
+                    problem = expect("PATH " + from + " " + to, "OK " + local.getPath(i, j),
+                            client.ask("PATH " + id + " " + from + " " + to + NL));
+                    if (problem != null) return problem;
+                }
+            }
+        }
+        return null;
+    }
+
+    private String testErrors() throws Exception
+    {
+        try (Running running = new Running(MB); Client client = new Client(running))
+        {
+            String id = id(client.submit(GRAPH));
+            String[][] cases = {
+                {"FOO\n", "Error: Unknown command 'FOO'."},
+                {"DIST nope A B\n", "Error: Unknown graph 'nope'."},
+                {"DIST " + id + " A\n", "Error: Expected 'DIST <id> <from> <to>'."},
+                {"PATH " + id + " A E\n", "Error: Vertex 'E' is not among valid values A-D."},
+                {"GRAPH\n3\nA X 4\nEND\n", "Error: Ending vertex 'X' on line 2 is not among valid values A-C."},
+                {"GRAPH\nthree\nEND\n", "Error: Invalid number of vertices 'three' on line 1."},
+                {"GRAPH\nEND\n", "Error: Invalid number of vertices '' on line 1."},
+            };
+            for (String[] c : cases)
+            {
+                String problem = expect(c[0].trim().replace('\n', ' '), c[1], client.ask(c[0]));
+                if (problem != null) return problem;
+            }
+
+            // The connection must still work after every error
+            return expect("DIST after errors", "OK 5", client.ask("DIST " + id + " A B\n"));
+        }
+    }
+
+    private String testSameEdgesSameId() throws Exception
+    {
+        String reordered = "4" + NL + "C B 3" + NL + "  B   D 1  " + NL + "A D 10" + NL
+                + "B A 7" + NL + "A C 9" + NL + "A C 2" + NL;
+        String different = GRAPH.replace("A D 10", "A D 11");
+
+        try (Running running = new Running(MB); Client client = new Client(running))
+        {
+            String id = id(client.submit(GRAPH));
+            String problem = expect("reordered, respaced and overridden edges", "OK " + id,
+                    client.submit(reordered));
+            if (problem != null) return problem;
+
+            if (id.equals(id(client.submit(different))))
+                return "a different weight produced the same id";
+            if (running.server.solveCount() != 2)
+                return "expected 2 solves, got " + running.server.solveCount();
+        }
+        return null;
+    }
+
+    private String testEviction() throws Exception
+    {
+        try (Running running = new Running(MB); Client client = new Client(running))
+        {
+            String kept = id(client.submit(bigGraph(1)));
+            String evicted = id(client.submit(bigGraph(2)));
+
+            // Far more 26-vertex graphs than 1 MB holds; touching the first
+            // one after each keeps it most recently used
+            String last = null;
+            for (int w = 3; w < 300; w++)
+            {
+                last = id(client.submit(bigGraph(w)));
+                if (last == null) return "graph " + w + " was not accepted";
+                if (client.ask("DIST " + kept + " A B\n") == null) return "connection closed";
+            }
+
+            String problem = expect("recently used graph", "OK 4", client.ask("DIST " + kept + " A B\n"));
+            if (problem != null) return problem;
+            problem = expect("latest graph", "OK 302", client.ask("DIST " + last + " A B\n"));
+            if (problem != null) return problem;
+            return expect("least recently used graph", "Error: Unknown graph '" + evicted + "'.",
+                    client.ask("DIST " + evicted + " A B\n"));
+        }
+    }
+
+    private String testSharedSolve() throws Exception
+    {
+        try (Running running = new Running(MB))
+        {
+            CountDownLatch start = new CountDownLatch(1);
+            Set<String> replies = new HashSet<>();
+            List<Thread> threads = new ArrayList<>();
+
+            for (int k = 0; k < CLIENTS; k++)
+            {
+                Thread t = new Thread(() ->
+                {
+                    try (Client client = new Client(running))
+                    {
+                        start.await();
+                        String reply = client.submit(bigGraph(7));
+                        synchronized (replies) { replies.add(reply); }
+                    } catch (Exception e)
+                    {
+                        synchronized (replies) { replies.add(e.toString()); }
+                    }
+                });
+                threads.add(t);
+                t.start();
+            }
+            start.countDown();
+            for (Thread t : threads) t.join();
+
+            if (replies.size() != 1 || id(replies.iterator().next()) == null)
+                return "expected one shared id, got " + replies;
+            if (running.server.solveCount() != 1)
+                return "expected 1 solve for " + CLIENTS + " submissions, got " + running.server.solveCount();
+        }
+        return null;
+    }
+
+    private String testTooSmallCache() throws Exception
+    {
+        // Smaller than one 26-vertex graph, so it can never be admitted
+        try (Running running = new Running(1000); Client client = new Client(running))
+        {
+            String reply = client.submit(bigGraph(1));
+            if (reply == null || !reply.startsWith("Error: Graph '") || !reply.endsWith("' does not fit in the cache."))
+                return "expected the graph to be refused, received '" + reply + "'";
+        }
+        return null;
+    }
+
+    private String testUsage() throws Exception
+    {
+        String[][] argLists = {{"99999"}, {"-1"}, {"7392", "0"}, {"7392", "-5"}, {"1", "2", "3"}, {"port"}};
+        for (String[] argList : argLists)
+        {
+            List<String> command = new ArrayList<>(List.of("java", "-cp",
+                    System.getProperty("java.class.path"), "ShortestPathsServer"));
+            command.addAll(List.of(argList));
+
+            Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            int status = p.waitFor();
+
+            String problem = expect("arguments " + String.join(" ", argList),
+                    "Usage: java ShortestPathsServer [port] [cache MB]", output);
+            if (problem != null) return problem;
+            if (status != 1) return "arguments " + String.join(" ", argList) + ": exit status " + status;
+        }
+        return null;
+    }
+
+    private void run()
+    {
+        runTest("distance and path queries", this::testQueries);
+        runTest("error replies", this::testErrors);
+        runTest("same edges, same id", this::testSameEdgesSameId);
+        runTest("LRU eviction", this::testEviction);
+        runTest("shared solve", this::testSharedSolve);
+        runTest("cache too small", this::testTooSmallCache);
+        runTest("usage", this::testUsage);
+
+        System.out.println();
+        System.out.println("Total tests run: " + total);
+        System.out.println("Number correct : " + numRight);
+    }
+
+    public static void main(String[] args)
+    {
+        ShortestPathsServerTester tester = new ShortestPathsServerTester();
+        tester.run();
+        System.exit(tester.numRight == tester.total ? 0 : 1);
+    }
+}